@@ -0,0 +1,480 @@
+package com.example.flutter_thermal_printer_pos;
+
+import java.util.Arrays;
+
+/**
+ * Rewrites encoded ESC/POS bytes before they are sent, without changing what gets printed.
+ *
+ * The optimizer tracks the printer's text modes so that mode commands which would not change
+ * anything are dropped, and mode changes are only sent right before the next text that needs
+ * them, which merges consecutive runs of the same style. It also drops trailing spaces before a
+ * line feed on left aligned lines. Image, barcode and QR data is passed through untouched. Once
+ * it meets a command it does not know, the rest of the job is passed through as is, since the
+ * length of that command's data is unknown.
+ *
+ * One instance must be used per print job since it keeps the printer state between buffers.
+ */
+final class EscPosOptimizer {
+  private static final byte ESC = 0x1B;
+  private static final byte GS = 0x1D;
+  private static final byte FS = 0x1C;
+  private static final byte DLE = 0x10;
+  private static final byte LF = 0x0A;
+  private static final byte SPACE = 0x20;
+
+  private static final int UNKNOWN = -1;
+  private static final int DEFAULT_LINE_SPACING = 0x100;
+
+  // Tracked modes, flushed in this order
+  private static final int MODE_CODE_PAGE = 0;
+  private static final int MODE_ALIGN = 1;
+  private static final int MODE_LINE_SPACING = 2;
+  private static final int MODE_SIZE = 3;
+  private static final int MODE_BOLD = 4;
+  private static final int MODE_UNDERLINE = 5;
+  private static final int MODE_DOUBLE_STRIKE = 6;
+  private static final int MODE_REVERSE = 7;
+  private static final int MODE_COLOR = 8;
+  private static final int MODE_PRINT = 9;
+  private static final int MODE_COUNT = 10;
+
+  // Result of measuring a command that cannot be measured yet
+  private static final int NEED_MORE = -1;
+  private static final int UNSUPPORTED = -2;
+
+  private final int[] applied = new int[MODE_COUNT];
+  private final int[] pending = new int[MODE_COUNT];
+  private boolean atLineStart;
+
+  // Bytes of a command header split across two buffers
+  private byte[] carry = new byte[0];
+  // Bytes of image or barcode data still to pass through from the previous buffer
+  private int passThrough;
+  // Set after a command that could not be measured, everything after it is sent unchanged
+  private boolean passAll;
+
+  private byte[] out = new byte[256];
+  private int outLength;
+  private int heldSpaces;
+
+  private long bytesIn;
+  private long bytesOut;
+
+  EscPosOptimizer() {
+    // Nothing is known about the printer until the job resets it
+    Arrays.fill(applied, UNKNOWN);
+    Arrays.fill(pending, UNKNOWN);
+  }
+
+  /** Total bytes handed to the optimizer so far. */
+  long getBytesIn() {
+    return bytesIn;
+  }
+
+  /** Total bytes returned by the optimizer so far. */
+  long getBytesOut() {
+    return bytesOut;
+  }
+
+  /** Bytes removed from the job so far. */
+  long getBytesSaved() {
+    return bytesIn - bytesOut;
+  }
+
+  /**
+   * Returns a command left incomplete by the last buffer unchanged, to be sent at the end of
+   * the job.
+   */
+  byte[] finish() {
+    byte[] rest = carry;
+    carry = new byte[0];
+    bytesOut += rest.length;
+    return rest;
+  }
+
+  /** Optimizes the next buffer of the job. */
+  byte[] optimize(byte[] data) {
+    bytesIn += data.length;
+    byte[] buffer = data;
+    if (carry.length > 0) {
+      buffer = new byte[carry.length + data.length];
+      System.arraycopy(carry, 0, buffer, 0, carry.length);
+      System.arraycopy(data, 0, buffer, carry.length, data.length);
+      carry = new byte[0];
+    }
+
+    outLength = 0;
+    heldSpaces = 0;
+
+    int pos = 0;
+    if (passAll) {
+      emit(buffer, 0, buffer.length);
+      pos = buffer.length;
+    } else if (passThrough > 0) {
+      int length = Math.min(passThrough, buffer.length);
+      emit(buffer, 0, length);
+      passThrough -= length;
+      pos = length;
+    }
+
+    while (pos < buffer.length) {
+      byte b = buffer[pos];
+      if (b == ESC || b == GS || b == FS || b == DLE) {
+        int length = commandLength(buffer, pos);
+        if (length == NEED_MORE) {
+          carry = Arrays.copyOfRange(buffer, pos, buffer.length);
+          break;
+        }
+        if (length == UNSUPPORTED) {
+          passRemaining(buffer, pos);
+          break;
+        }
+        pos = handleCommand(buffer, pos, length);
+      } else if (b == SPACE) {
+        handleSpace();
+        pos++;
+      } else if (b == LF) {
+        heldSpaces = 0;
+        flushPending(MODE_LINE_SPACING, MODE_SIZE);
+        emit(LF);
+        atLineStart = true;
+        pos++;
+      } else if ((b & 0xFF) > SPACE) {
+        flushAll();
+        emit(b);
+        atLineStart = false;
+        pos++;
+      } else {
+        // Other control characters are kept in place with everything before them
+        flushAll();
+        emit(b);
+        pos++;
+      }
+    }
+    flushHeldSpaces();
+
+    bytesOut += outLength;
+    return Arrays.copyOf(out, outLength);
+  }
+
+  private int handleCommand(byte[] buffer, int pos, int length) {
+    byte prefix = buffer[pos];
+    byte command = buffer[pos + 1];
+
+    if (prefix == ESC && command == '@') {
+      flushHeldSpaces();
+      emit(buffer, pos, length);
+      for (int mode = 0; mode < MODE_COUNT; mode++) {
+        applied[mode] = defaultValue(mode);
+        pending[mode] = applied[mode];
+      }
+      atLineStart = true;
+      return pos + length;
+    }
+
+    if (prefix == ESC && command == '!') {
+      int value = buffer[pos + 2] & 0xFF;
+      if (applied[MODE_PRINT] == value) {
+        // Still overrides any bold, underline or size change queued before it
+        pending[MODE_BOLD] = applied[MODE_BOLD];
+        pending[MODE_UNDERLINE] = applied[MODE_UNDERLINE];
+        pending[MODE_SIZE] = applied[MODE_SIZE];
+      } else {
+        // ESC ! also sets bold, underline and size, so it is applied in place
+        flushAll();
+        emit(buffer, pos, length);
+        applied[MODE_PRINT] = value;
+        pending[MODE_PRINT] = value;
+        applied[MODE_BOLD] = pending[MODE_BOLD] = UNKNOWN;
+        applied[MODE_UNDERLINE] = pending[MODE_UNDERLINE] = UNKNOWN;
+        applied[MODE_SIZE] = pending[MODE_SIZE] = UNKNOWN;
+      }
+      return pos + length;
+    }
+
+    int mode = modeOf(prefix, command);
+    if (mode == MODE_ALIGN && !atLineStart) {
+      // Alignment only applies at the start of a line, so leave it exactly where it was sent
+      mode = UNKNOWN;
+      applied[MODE_ALIGN] = pending[MODE_ALIGN] = UNKNOWN;
+    }
+    if (mode != UNKNOWN) {
+      pending[mode] = modeValue(mode, buffer, pos);
+      return pos + length;
+    }
+
+    flushAll();
+    int available = Math.min(length, buffer.length - pos);
+    emit(buffer, pos, available);
+    passThrough = length - available;
+    if (prefix == ESC && (command == 'd' || command == 'J') || prefix == GS && command == 'V') {
+      atLineStart = true;
+    }
+    if (prefix == ESC && command == 'M') {
+      // The font is also bit 0 of ESC !
+      applied[MODE_PRINT] = pending[MODE_PRINT] = UNKNOWN;
+    }
+    return pos + available;
+  }
+
+  private void handleSpace() {
+    if (hasPendingChanges()) {
+      flushAll();
+    }
+    if (applied[MODE_ALIGN] == 0 && applied[MODE_UNDERLINE] == 0 && applied[MODE_REVERSE] == 0) {
+      // Held back until we know whether anything else follows on this line
+      heldSpaces++;
+    } else {
+      emit(SPACE);
+    }
+    atLineStart = false;
+  }
+
+  private void flushAll() {
+    flushHeldSpaces();
+    flushPending(0, MODE_COUNT - 1);
+  }
+
+  private boolean hasPendingChanges() {
+    for (int mode = 0; mode < MODE_COUNT; mode++) {
+      if (pending[mode] != UNKNOWN && pending[mode] != applied[mode]) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void flushHeldSpaces() {
+    for (; heldSpaces > 0; heldSpaces--) {
+      emit(SPACE);
+    }
+  }
+
+  private void flushPending(int from, int to) {
+    for (int mode = from; mode <= to; mode++) {
+      if (pending[mode] == UNKNOWN || pending[mode] == applied[mode]) {
+        continue;
+      }
+      emitMode(mode, pending[mode]);
+      applied[mode] = pending[mode];
+      if (mode == MODE_BOLD || mode == MODE_UNDERLINE || mode == MODE_SIZE) {
+        applied[MODE_PRINT] = pending[MODE_PRINT] = UNKNOWN;
+      }
+    }
+  }
+
+  private void passRemaining(byte[] buffer, int pos) {
+    flushAll();
+    emit(buffer, pos, buffer.length - pos);
+    passAll = true;
+  }
+
+  private void emitMode(int mode, int value) {
+    switch (mode) {
+      case MODE_CODE_PAGE:
+        emit(ESC, (byte) 't', (byte) value);
+        break;
+      case MODE_ALIGN:
+        emit(ESC, (byte) 'a', (byte) value);
+        break;
+      case MODE_LINE_SPACING:
+        if (value == DEFAULT_LINE_SPACING) {
+          emit(ESC, (byte) '2');
+        } else {
+          emit(ESC, (byte) '3', (byte) value);
+        }
+        break;
+      case MODE_SIZE:
+        emit(GS, (byte) '!', (byte) value);
+        break;
+      case MODE_BOLD:
+        emit(ESC, (byte) 'E', (byte) value);
+        break;
+      case MODE_UNDERLINE:
+        emit(ESC, (byte) '-', (byte) value);
+        break;
+      case MODE_DOUBLE_STRIKE:
+        emit(ESC, (byte) 'G', (byte) value);
+        break;
+      case MODE_REVERSE:
+        emit(GS, (byte) 'B', (byte) value);
+        break;
+      case MODE_COLOR:
+        emit(ESC, (byte) 'r', (byte) value);
+        break;
+      default:
+        break;
+    }
+  }
+
+  private static int modeOf(byte prefix, byte command) {
+    if (prefix == ESC) {
+      switch (command) {
+        case 't': return MODE_CODE_PAGE;
+        case 'a': return MODE_ALIGN;
+        case '2':
+        case '3': return MODE_LINE_SPACING;
+        case 'E': return MODE_BOLD;
+        case '-': return MODE_UNDERLINE;
+        case 'G': return MODE_DOUBLE_STRIKE;
+        case 'r': return MODE_COLOR;
+        default: return UNKNOWN;
+      }
+    }
+    if (prefix == GS) {
+      switch (command) {
+        case '!': return MODE_SIZE;
+        case 'B': return MODE_REVERSE;
+        default: return UNKNOWN;
+      }
+    }
+    return UNKNOWN;
+  }
+
+  private static int modeValue(int mode, byte[] buffer, int pos) {
+    if (mode == MODE_LINE_SPACING && buffer[pos + 1] == '2') {
+      return DEFAULT_LINE_SPACING;
+    }
+    int value = buffer[pos + 2] & 0xFF;
+    switch (mode) {
+      case MODE_BOLD:
+      case MODE_DOUBLE_STRIKE:
+      case MODE_REVERSE:
+        return value & 0x01;
+      case MODE_ALIGN:
+      case MODE_UNDERLINE:
+      case MODE_COLOR:
+        // These accept both 0, 1, 2 and '0', '1', '2'
+        return value >= '0' ? value - '0' : value;
+      default:
+        return value;
+    }
+  }
+
+  private static int defaultValue(int mode) {
+    switch (mode) {
+      case MODE_LINE_SPACING:
+        return DEFAULT_LINE_SPACING;
+      case MODE_CODE_PAGE:
+        // Reset restores the printer's power-on code page, which depends on its settings
+        return UNKNOWN;
+      default:
+        return 0;
+    }
+  }
+
+  /** Length of the command at pos including its data, which may run past the end of the buffer. */
+  private static int commandLength(byte[] buffer, int pos) {
+    int available = buffer.length - pos;
+    if (available < 2) {
+      return NEED_MORE;
+    }
+    byte prefix = buffer[pos];
+    byte command = buffer[pos + 1];
+
+    if (prefix == ESC) {
+      switch (command) {
+        case '@':
+        case '2':
+          return 2;
+        case '!': case '-': case '3': case 'E': case 'G': case 'J': case 'M': case 'R':
+        case 'U': case 'V': case 'a': case 'd': case 'r': case 't': case '{': case ' ':
+          return fixedLength(3, available);
+        case '$':
+          return fixedLength(4, available);
+        case 'p':
+          return fixedLength(5, available);
+        case '*': {
+          if (available < 5) {
+            return NEED_MORE;
+          }
+          int m = buffer[pos + 2] & 0xFF;
+          int n = (buffer[pos + 3] & 0xFF) | (buffer[pos + 4] & 0xFF) << 8;
+          if (m == 0 || m == 1) {
+            return 5 + n;
+          }
+          if (m == 32 || m == 33) {
+            return 5 + 3 * n;
+          }
+          return UNSUPPORTED;
+        }
+        default:
+          return UNSUPPORTED;
+      }
+    }
+
+    if (prefix == GS) {
+      switch (command) {
+        case '!': case 'B': case 'H': case 'a': case 'f': case 'h': case 'w':
+          return fixedLength(3, available);
+        case 'L': case 'W':
+          return fixedLength(4, available);
+        case 'V': {
+          if (available < 3) {
+            return NEED_MORE;
+          }
+          int m = buffer[pos + 2] & 0xFF;
+          return m == 65 || m == 66 || m == 97 || m == 98 || m == 103 || m == 104 ? fixedLength(4, available) : 3;
+        }
+        case '(': {
+          if (available < 5) {
+            return NEED_MORE;
+          }
+          return 5 + ((buffer[pos + 3] & 0xFF) | (buffer[pos + 4] & 0xFF) << 8);
+        }
+        case 'k': {
+          if (available < 3) {
+            return NEED_MORE;
+          }
+          int m = buffer[pos + 2] & 0xFF;
+          if (m <= 6) {
+            for (int i = pos + 3; i < buffer.length; i++) {
+              if (buffer[i] == 0) {
+                return i - pos + 1;
+              }
+            }
+            return NEED_MORE;
+          }
+          if (available < 4) {
+            return NEED_MORE;
+          }
+          return 4 + (buffer[pos + 3] & 0xFF);
+        }
+        case 'v': {
+          if (available < 8) {
+            return NEED_MORE;
+          }
+          if (buffer[pos + 2] != '0') {
+            return UNSUPPORTED;
+          }
+          int width = (buffer[pos + 4] & 0xFF) | (buffer[pos + 5] & 0xFF) << 8;
+          int height = (buffer[pos + 6] & 0xFF) | (buffer[pos + 7] & 0xFF) << 8;
+          return 8 + width * height;
+        }
+        default:
+          return UNSUPPORTED;
+      }
+    }
+
+    if (prefix == DLE && (command == 0x04 || command == 0x05)) {
+      return fixedLength(3, available);
+    }
+    return UNSUPPORTED;
+  }
+
+  private static int fixedLength(int length, int available) {
+    return available < length ? NEED_MORE : length;
+  }
+
+  private void emit(byte... bytes) {
+    emit(bytes, 0, bytes.length);
+  }
+
+  private void emit(byte[] bytes, int offset, int length) {
+    if (outLength + length > out.length) {
+      out = Arrays.copyOf(out, Math.max(out.length * 2, outLength + length));
+    }
+    System.arraycopy(bytes, offset, out, outLength, length);
+    outLength += length;
+  }
+}
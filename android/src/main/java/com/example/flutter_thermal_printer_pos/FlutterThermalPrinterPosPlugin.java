@@ -17,8 +17,6 @@ import java.util.HashMap;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 import io.flutter.embedding.engine.plugins.FlutterPlugin;
 import io.flutter.embedding.engine.plugins.activity.ActivityAware;
@@ -29,6 +27,7 @@ import io.flutter.plugin.common.MethodChannel.MethodCallHandler;
 import io.flutter.plugin.common.MethodChannel.Result;
 import io.flutter.plugin.common.PluginRegistry.RequestPermissionsResultListener;
 
+import com.dantsu.escposprinter.connection.DeviceConnection;
 import com.dantsu.escposprinter.connection.tcp.TcpConnection;
 import com.dantsu.escposprinter.connection.bluetooth.BluetoothPrintersConnections;
 import com.dantsu.escposprinter.connection.bluetooth.BluetoothConnection;
@@ -42,7 +41,7 @@ public class FlutterThermalPrinterPosPlugin implements FlutterPlugin, MethodCall
   private MethodChannel channel;
   private Context context;
   private Activity activity;
-  private ExecutorService executorService;
+  private PrintService printService;
   private Handler mainHandler;
   
   // Permission request codes
@@ -69,7 +68,7 @@ public class FlutterThermalPrinterPosPlugin implements FlutterPlugin, MethodCall
     channel = new MethodChannel(flutterPluginBinding.getBinaryMessenger(), "flutter_thermal_printer_pos");
     channel.setMethodCallHandler(this);
     context = flutterPluginBinding.getApplicationContext();
-    executorService = Executors.newSingleThreadExecutor();
+    printService = PrintService.acquire();
     mainHandler = new Handler(Looper.getMainLooper());
   }
 
@@ -104,7 +103,7 @@ public class FlutterThermalPrinterPosPlugin implements FlutterPlugin, MethodCall
   }
 
   private void handlePrintTcp(@NonNull MethodCall call, @NonNull Result result) {
-    executorService.execute(() -> {
+    printService.execute(() -> {
       try {
         android.util.Log.d("ThermalPrinter", "Starting TCP print operation");
         Map<String, Object> arguments = call.arguments();
@@ -128,32 +127,18 @@ public class FlutterThermalPrinterPosPlugin implements FlutterPlugin, MethodCall
 
         int connectionTimeout = timeout != null ? timeout : 30000;
         android.util.Log.d("ThermalPrinter", "Connecting to " + ip + ":" + port + " with timeout " + connectionTimeout + "ms");
-        
-        // Create TCP connection
-        TcpConnection tcpConnection = new TcpConnection(ip, port, connectionTimeout);
-        
-        EscPosPrinter printer = new EscPosPrinter(
-          tcpConnection, 
-          printerDpi != null ? printerDpi : 203,
-          printerWidthMM != null ? printerWidthMM.floatValue() : 80f,
-          printerNbrCharactersPerLine != null ? printerNbrCharactersPerLine : 42
-        );
-
-        String formattedPayload = payload;
-        if (mmFeedPaper != null && mmFeedPaper > 0) {
-          formattedPayload += "\n".repeat(mmFeedPaper / 4);
-        }
-        
-        if (autoCut != null && autoCut) {
-          formattedPayload += "\n";
-        }
 
         if (openCashbox != null && openCashbox) {
           // Cashbox command removed - use ESC/POS commands in payload if needed
         }
 
         android.util.Log.d("ThermalPrinter", "Sending print data to printer");
-        printer.printFormattedTextAndCut(formattedPayload);
+        // Reuses the shared connection to this printer if one is already open
+        printService.print(
+          PrintService.tcpKey(ip, port),
+          () -> new TcpConnection(ip, port, connectionTimeout),
+          connection -> printPayload(connection, payload, autoCut, mmFeedPaper, printerDpi, printerWidthMM, printerNbrCharactersPerLine)
+        );
         android.util.Log.d("ThermalPrinter", "Print operation completed successfully");
         
         mainHandler.post(() -> result.success(true));
@@ -214,7 +199,7 @@ public class FlutterThermalPrinterPosPlugin implements FlutterPlugin, MethodCall
   }
 
   private void executeGetBluetoothDevices(@NonNull Result result) {
-    executorService.execute(() -> {
+    printService.execute(() -> {
       try {
         BluetoothAdapter bluetoothAdapter = BluetoothAdapter.getDefaultAdapter();
         if (bluetoothAdapter == null) {
@@ -426,7 +411,7 @@ public class FlutterThermalPrinterPosPlugin implements FlutterPlugin, MethodCall
   }
 
   private void executePrintBluetooth(@NonNull MethodCall call, @NonNull Result result) {
-    executorService.execute(() -> {
+    printService.execute(() -> {
       try {
         Map<String, Object> arguments = call.arguments();
         
@@ -443,37 +428,21 @@ public class FlutterThermalPrinterPosPlugin implements FlutterPlugin, MethodCall
           return;
         }
 
-        android.util.Log.d("ThermalPrinter", "Selecting first paired Bluetooth printer");
-        BluetoothConnection bluetoothConnection = BluetoothPrintersConnections.selectFirstPaired();
-        
-        if (bluetoothConnection == null) {
-          mainHandler.post(() -> result.error("BLUETOOTH_ERROR", "No paired Bluetooth printer found. Please pair a printer first.", null));
-          return;
+        if (openCashbox != null && openCashbox) {
+          // Cashbox command removed - use ESC/POS commands in payload if needed
         }
 
-        android.util.Log.d("ThermalPrinter", "Bluetooth printer selected, creating printer instance");
-        EscPosPrinter printer = new EscPosPrinter(
-          bluetoothConnection,
-          printerDpi != null ? printerDpi : 203,
-          printerWidthMM != null ? printerWidthMM.floatValue() : 80f,
-          printerNbrCharactersPerLine != null ? printerNbrCharactersPerLine : 42
+        // Only connects to a paired printer when none of them is connected already
+        android.util.Log.d("ThermalPrinter", "Selecting first paired Bluetooth printer");
+        boolean printed = printService.printFirstPaired(
+          new BluetoothPrintersConnections().getList(),
+          connection -> printPayload(connection, payload, autoCut, mmFeedPaper, printerDpi, printerWidthMM, printerNbrCharactersPerLine)
         );
 
-        String formattedPayload = payload;
-        if (mmFeedPaper != null && mmFeedPaper > 0) {
-          formattedPayload += "\n".repeat(mmFeedPaper / 4);
-        }
-        
-        if (autoCut != null && autoCut) {
-          formattedPayload += "\n";
-        }
-
-        if (openCashbox != null && openCashbox) {
-          // Cashbox command removed - use ESC/POS commands in payload if needed
+        if (!printed) {
+          mainHandler.post(() -> result.error("BLUETOOTH_ERROR", "No paired Bluetooth printer found. Please pair a printer first.", null));
+          return;
         }
-
-        android.util.Log.d("ThermalPrinter", "Printing formatted text");
-        printer.printFormattedTextAndCut(formattedPayload);
         android.util.Log.d("ThermalPrinter", "Print completed successfully");
         
         mainHandler.post(() -> result.success(true));
@@ -491,7 +460,7 @@ public class FlutterThermalPrinterPosPlugin implements FlutterPlugin, MethodCall
   }
 
   private void executePrintBluetoothDevice(@NonNull MethodCall call, @NonNull Result result) {
-    executorService.execute(() -> {
+    printService.execute(() -> {
       try {
         Map<String, Object> arguments = call.arguments();
         
@@ -530,32 +499,16 @@ public class FlutterThermalPrinterPosPlugin implements FlutterPlugin, MethodCall
           return;
         }
 
-        android.util.Log.d("ThermalPrinter", "Creating Bluetooth connection to device");
-        BluetoothConnection bluetoothConnection = new BluetoothConnection(device);
-        
-        android.util.Log.d("ThermalPrinter", "Creating printer instance");
-        EscPosPrinter printer = new EscPosPrinter(
-          bluetoothConnection,
-          printerDpi != null ? printerDpi : 203,
-          printerWidthMM != null ? printerWidthMM.floatValue() : 80f,
-          printerNbrCharactersPerLine != null ? printerNbrCharactersPerLine : 42
-        );
-
-        String formattedPayload = payload;
-        if (mmFeedPaper != null && mmFeedPaper > 0) {
-          formattedPayload += "\n".repeat(mmFeedPaper / 4);
-        }
-        
-        if (autoCut != null && autoCut) {
-          formattedPayload += "\n";
-        }
-
         if (openCashbox != null && openCashbox) {
           // Cashbox command removed - use ESC/POS commands in payload if needed
         }
 
         android.util.Log.d("ThermalPrinter", "Printing to device: " + device.getName());
-        printer.printFormattedTextAndCut(formattedPayload);
+        printService.print(
+          PrintService.bluetoothKey(address),
+          () -> new BluetoothConnection(device),
+          connection -> printPayload(connection, payload, autoCut, mmFeedPaper, printerDpi, printerWidthMM, printerNbrCharactersPerLine)
+        );
         android.util.Log.d("ThermalPrinter", "Print completed successfully");
         
         mainHandler.post(() -> result.success(true));
@@ -575,12 +528,45 @@ public class FlutterThermalPrinterPosPlugin implements FlutterPlugin, MethodCall
     });
   }
 
+  private void printPayload(DeviceConnection connection, String payload, Boolean autoCut, Integer mmFeedPaper,
+      Integer printerDpi, Integer printerWidthMM, Integer printerNbrCharactersPerLine) throws Exception {
+    OptimizingConnection optimizingConnection = new OptimizingConnection(connection);
+    EscPosPrinter printer = new EscPosPrinter(
+      optimizingConnection,
+      printerDpi != null ? printerDpi : 203,
+      printerWidthMM != null ? printerWidthMM.floatValue() : 80f,
+      printerNbrCharactersPerLine != null ? printerNbrCharactersPerLine : 42
+    );
+
+    String formattedPayload = payload;
+    if (autoCut != null && autoCut) {
+      formattedPayload += "\n";
+    }
+    printer.printFormattedText(formattedPayload, 0);
+
+    // Keep the library's default 20 mm feed before the cut and add the extra paper feed as exact
+    // ESC J dots instead of padding with blank lines
+    EscPosPrinterCommands commands = new EscPosPrinterCommands(optimizingConnection);
+    int feedDots = printer.mmToPx(20f);
+    if (mmFeedPaper != null && mmFeedPaper > 0) {
+      feedDots += printer.mmToPx(mmFeedPaper);
+    }
+    for (; feedDots > 0; feedDots -= 255) {
+      commands.feedPaper(Math.min(feedDots, 255));
+    }
+    commands.cutPaper();
+    optimizingConnection.finish();
+
+    EscPosOptimizer optimizer = optimizingConnection.getOptimizer();
+    android.util.Log.d("ThermalPrinter", "Sent " + optimizer.getBytesOut() + " of " + optimizer.getBytesIn()
+      + " bytes, optimizer saved " + optimizer.getBytesSaved() + " bytes");
+  }
+
   @Override
   public void onDetachedFromEngine(@NonNull FlutterPluginBinding binding) {
     channel.setMethodCallHandler(null);
-    if (executorService != null) {
-      executorService.shutdown();
-    }
+    // In-flight jobs still hold this instance, so keep the reference and only drop our hold
+    PrintService.release();
   }
 
   @Override
@@ -0,0 +1,73 @@
+package com.example.flutter_thermal_printer_pos;
+
+import java.io.ByteArrayOutputStream;
+
+import com.dantsu.escposprinter.connection.DeviceConnection;
+import com.dantsu.escposprinter.exceptions.EscPosConnectionException;
+
+/**
+ * Wraps a printer connection for one print job and runs everything the printer library encodes
+ * through an {@link EscPosOptimizer} before it is written to the real connection.
+ */
+final class OptimizingConnection extends DeviceConnection {
+  private final DeviceConnection connection;
+  private final EscPosOptimizer optimizer = new EscPosOptimizer();
+  private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+  OptimizingConnection(DeviceConnection connection) {
+    this.connection = connection;
+  }
+
+  EscPosOptimizer getOptimizer() {
+    return optimizer;
+  }
+
+  @Override
+  public DeviceConnection connect() throws EscPosConnectionException {
+    connection.connect();
+    return this;
+  }
+
+  @Override
+  public DeviceConnection disconnect() {
+    connection.disconnect();
+    return this;
+  }
+
+  @Override
+  public boolean isConnected() {
+    return connection.isConnected();
+  }
+
+  @Override
+  public void write(byte[] bytes) {
+    buffer.write(bytes, 0, bytes.length);
+  }
+
+  @Override
+  public void send() throws EscPosConnectionException {
+    send(0);
+  }
+
+  @Override
+  public void send(int addWaitingTime) throws EscPosConnectionException {
+    byte[] optimized = optimizer.optimize(buffer.toByteArray());
+    buffer.reset();
+    if (optimized.length > 0) {
+      connection.write(optimized);
+    }
+    connection.send(addWaitingTime);
+  }
+
+  /** Sends anything the optimizer is still holding back once the job is complete. */
+  void finish() throws EscPosConnectionException {
+    if (buffer.size() > 0) {
+      send();
+    }
+    byte[] rest = optimizer.finish();
+    if (rest.length > 0) {
+      connection.write(rest);
+      connection.send();
+    }
+  }
+}
@@ -0,0 +1,187 @@
+package com.example.flutter_thermal_printer_pos;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.dantsu.escposprinter.connection.DeviceConnection;
+import com.dantsu.escposprinter.connection.bluetooth.BluetoothConnection;
+import com.dantsu.escposprinter.exceptions.EscPosConnectionException;
+
+/**
+ * Process-wide print service shared by every Flutter engine the plugin is attached to.
+ *
+ * The UI engine and any background isolate engines each get their own plugin instance, but
+ * they all delegate here so that print jobs run on a single queue and each printer is only
+ * opened once per process. Connections are closed once the queue has been idle for a few
+ * seconds so other terminals can reach the printer, and a job that fails on a reused
+ * connection is retried once on a new one in case the printer dropped the old socket.
+ */
+final class PrintService {
+  private static final long IDLE_TIMEOUT_MS = 5000;
+
+  private static PrintService instance;
+  private static int clients;
+
+  /** Opens a new connection to the printer a job is for. */
+  interface ConnectionFactory {
+    DeviceConnection open() throws Exception;
+  }
+
+  /** Prints a job on the given connection. */
+  interface ConnectionJob {
+    void print(DeviceConnection connection) throws Exception;
+  }
+
+  private final ScheduledExecutorService executorService = Executors.newSingleThreadScheduledExecutor();
+  private final long idleTimeoutMs;
+  private long lastJobTime;
+
+  // Open printer connections keyed by transport and address, only touched from the executor
+  private final Map<String, DeviceConnection> connections = new HashMap<>();
+
+  PrintService(long idleTimeoutMs) {
+    this.idleTimeoutMs = idleTimeoutMs;
+  }
+
+  /** Returns the shared service, creating it for the first attached engine. */
+  static synchronized PrintService acquire() {
+    if (instance == null) {
+      instance = new PrintService(IDLE_TIMEOUT_MS);
+      android.util.Log.d("ThermalPrinter", "Print service started");
+    }
+    clients++;
+    return instance;
+  }
+
+  /** Releases one engine's hold on the service, shutting it down when the last one detaches. */
+  static synchronized void release() {
+    if (instance == null) {
+      return;
+    }
+    clients--;
+    if (clients <= 0) {
+      instance.shutdown();
+      instance = null;
+      clients = 0;
+      android.util.Log.d("ThermalPrinter", "Print service stopped");
+    }
+  }
+
+  static String tcpKey(String ip, int port) {
+    return "tcp:" + ip + ":" + port;
+  }
+
+  static String bluetoothKey(String address) {
+    return "bt:" + address;
+  }
+
+  /** Queues a job behind every other engine's jobs. */
+  void execute(Runnable job) {
+    executorService.execute(() -> {
+      try {
+        job.run();
+      } finally {
+        lastJobTime = System.nanoTime();
+        if (!executorService.isShutdown()) {
+          executorService.schedule(this::closeIdleConnections, idleTimeoutMs, TimeUnit.MILLISECONDS);
+        }
+      }
+    });
+  }
+
+  /**
+   * Prints on the open connection for this printer, or on a new one from the factory that is then
+   * kept for the next jobs. If the job fails on a reused connection it is retried once on a new one.
+   */
+  void print(String key, ConnectionFactory factory, ConnectionJob job) throws Exception {
+    DeviceConnection cached = connections.get(key);
+    if (cached != null && cached.isConnected()) {
+      android.util.Log.d("ThermalPrinter", "Reusing connection to " + key);
+      try {
+        job.print(cached);
+        return;
+      } catch (Exception e) {
+        android.util.Log.w("ThermalPrinter", "Reused connection to " + key + " failed, retrying: " + e.getMessage());
+        invalidate(cached);
+      }
+    }
+
+    DeviceConnection connection = factory.open();
+    connections.put(key, connection);
+    try {
+      job.print(connection);
+    } catch (Exception e) {
+      invalidate(connection);
+      throw e;
+    }
+  }
+
+  /**
+   * Prints on the first paired Bluetooth printer, preferring one that is already connected so
+   * that no second socket is opened to it. Returns false if no paired printer could be reached.
+   */
+  boolean printFirstPaired(BluetoothConnection[] printers, ConnectionJob job) throws Exception {
+    if (printers == null) {
+      return false;
+    }
+    for (BluetoothConnection printer : printers) {
+      String key = bluetoothKey(printer.getDevice().getAddress());
+      DeviceConnection cached = connections.get(key);
+      if (cached != null && cached.isConnected()) {
+        print(key, () -> new BluetoothConnection(printer.getDevice()), job);
+        return true;
+      }
+    }
+    for (BluetoothConnection printer : printers) {
+      try {
+        printer.connect();
+      } catch (EscPosConnectionException e) {
+        continue;
+      }
+      print(bluetoothKey(printer.getDevice().getAddress()), () -> printer, job);
+      return true;
+    }
+    return false;
+  }
+
+  /** Closes and forgets a connection after a failed job so the next one reconnects. */
+  void invalidate(DeviceConnection connection) {
+    if (connection == null) {
+      return;
+    }
+    connections.values().remove(connection);
+    try {
+      connection.disconnect();
+    } catch (Exception e) {
+      android.util.Log.w("ThermalPrinter", "Error closing printer connection: " + e.getMessage());
+    }
+  }
+
+  /** Closes every connection once the queued jobs are done and stops the queue. */
+  void shutdown() {
+    executorService.execute(this::disconnectAll);
+    executorService.shutdown();
+  }
+
+  private void closeIdleConnections() {
+    if (connections.isEmpty() || System.nanoTime() - lastJobTime < TimeUnit.MILLISECONDS.toNanos(idleTimeoutMs)) {
+      return;
+    }
+    android.util.Log.d("ThermalPrinter", "Closing " + connections.size() + " idle printer connection(s)");
+    disconnectAll();
+  }
+
+  private void disconnectAll() {
+    for (DeviceConnection connection : connections.values()) {
+      try {
+        connection.disconnect();
+      } catch (Exception e) {
+        android.util.Log.w("ThermalPrinter", "Error closing printer connection: " + e.getMessage());
+      }
+    }
+    connections.clear();
+  }
+}
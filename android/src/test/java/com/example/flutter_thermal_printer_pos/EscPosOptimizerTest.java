@@ -0,0 +1,158 @@
+package com.example.flutter_thermal_printer_pos;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import org.junit.Test;
+
+public class EscPosOptimizerTest {
+  private static final byte[] RESET = {0x1B, 0x40};
+  private static final byte[] BOLD_ON = {0x1B, 0x45, 0x01};
+  private static final byte[] BOLD_OFF = {0x1B, 0x45, 0x00};
+  private static final byte[] UNDERLINE_ON = {0x1B, 0x2D, 0x01};
+  private static final byte[] ALIGN_CENTER = {0x1B, 0x61, 0x01};
+  private static final byte[] ALIGN_LEFT = {0x1B, 0x61, 0x00};
+  private static final byte[] LF = {0x0A};
+
+  private static byte[] bytes(Object... parts) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    for (Object part : parts) {
+      byte[] b = part instanceof String ? ((String) part).getBytes() : (byte[]) part;
+      out.write(b, 0, b.length);
+    }
+    return out.toByteArray();
+  }
+
+  @Test
+  public void optimize_dropsModeCommandsThatChangeNothing() {
+    EscPosOptimizer optimizer = new EscPosOptimizer();
+    byte[] result = optimizer.optimize(bytes(RESET, ALIGN_LEFT, BOLD_OFF, "A", LF, ALIGN_LEFT, BOLD_OFF, "B", LF));
+
+    assertArrayEquals(bytes(RESET, "A", LF, "B", LF), result);
+    assertEquals(12, optimizer.getBytesSaved());
+  }
+
+  @Test
+  public void optimize_mergesRunsWithTheSameStyle() {
+    EscPosOptimizer optimizer = new EscPosOptimizer();
+    byte[] result = optimizer.optimize(bytes(RESET, BOLD_ON, "A", BOLD_OFF, BOLD_ON, "B", BOLD_OFF, LF));
+
+    assertArrayEquals(bytes(RESET, BOLD_ON, "AB", LF), result);
+  }
+
+  @Test
+  public void optimize_keepsAlignmentAtTheStartOfTheNextLine() {
+    EscPosOptimizer optimizer = new EscPosOptimizer();
+    byte[] result = optimizer.optimize(bytes(RESET, "A", LF, ALIGN_CENTER, LF, "B", LF));
+
+    assertArrayEquals(bytes(RESET, "A", LF, LF, ALIGN_CENTER, "B", LF), result);
+  }
+
+  @Test
+  public void optimize_trimsTrailingSpaces() {
+    EscPosOptimizer optimizer = new EscPosOptimizer();
+    byte[] result = optimizer.optimize(bytes(RESET, "A  B   ", LF));
+
+    assertArrayEquals(bytes(RESET, "A  B", LF), result);
+  }
+
+  @Test
+  public void optimize_keepsTrailingSpacesWhenUnderlined() {
+    EscPosOptimizer optimizer = new EscPosOptimizer();
+    byte[] result = optimizer.optimize(bytes(RESET, UNDERLINE_ON, "A  ", LF));
+
+    assertArrayEquals(bytes(RESET, UNDERLINE_ON, "A  ", LF), result);
+  }
+
+  @Test
+  public void optimize_keepsTrailingSpacesWhenNotLeftAligned() {
+    EscPosOptimizer optimizer = new EscPosOptimizer();
+    byte[] result = optimizer.optimize(bytes(RESET, ALIGN_CENTER, "AB  ", LF));
+
+    assertArrayEquals(bytes(RESET, ALIGN_CENTER, "AB  ", LF), result);
+  }
+
+  @Test
+  public void optimize_keepsCodePageAfterReset() {
+    EscPosOptimizer optimizer = new EscPosOptimizer();
+    byte[] data = bytes(RESET, new byte[]{0x1B, 0x74, 0x00}, "A", LF);
+    byte[] result = optimizer.optimize(data);
+
+    assertArrayEquals(data, result);
+  }
+
+  @Test
+  public void optimize_keepsPrintModeAfterFontChange() {
+    EscPosOptimizer optimizer = new EscPosOptimizer();
+    byte[] fontB = {0x1B, 0x21, 0x01};
+    byte[] data = bytes(RESET, fontB, "A", new byte[]{0x1B, 0x4D, 0x00}, "B", fontB, "C", LF);
+    byte[] result = optimizer.optimize(data);
+
+    assertArrayEquals(data, result);
+  }
+
+  @Test
+  public void optimize_passesImageDataThroughUntouched() {
+    EscPosOptimizer optimizer = new EscPosOptimizer();
+    byte[] image = {0x1D, 0x76, 0x30, 0x00, 0x04, 0x00, 0x01, 0x00, 0x20, 0x1B, 0x45, 0x20};
+    byte[] result = optimizer.optimize(bytes(RESET, image, LF));
+
+    assertArrayEquals(bytes(RESET, image, LF), result);
+  }
+
+  @Test
+  public void optimize_passesImageDataThroughAcrossBuffers() {
+    EscPosOptimizer optimizer = new EscPosOptimizer();
+    byte[] first = optimizer.optimize(bytes(RESET, new byte[]{0x1D, 0x76, 0x30, 0x00, 0x04, 0x00, 0x01, 0x00, 0x20}));
+    byte[] second = optimizer.optimize(bytes(new byte[]{0x1B, 0x45, 0x20}, " ", LF));
+
+    assertArrayEquals(bytes(RESET, new byte[]{0x1D, 0x76, 0x30, 0x00, 0x04, 0x00, 0x01, 0x00, 0x20}), first);
+    assertArrayEquals(bytes(new byte[]{0x1B, 0x45, 0x20}, LF), second);
+  }
+
+  @Test
+  public void optimize_waitsForCommandsSplitAcrossBuffers() {
+    EscPosOptimizer optimizer = new EscPosOptimizer();
+    byte[] first = optimizer.optimize(bytes(RESET, new byte[]{0x1B, 0x45}));
+    byte[] second = optimizer.optimize(bytes(new byte[]{0x01}, "A", LF));
+
+    assertArrayEquals(RESET, first);
+    assertArrayEquals(bytes(BOLD_ON, "A", LF), second);
+  }
+
+  @Test
+  public void finish_returnsCommandLeftIncompleteAtTheEndOfTheJob() {
+    EscPosOptimizer optimizer = new EscPosOptimizer();
+    byte[] result = optimizer.optimize(bytes(RESET, "A", new byte[]{0x1B, 0x45}));
+    byte[] rest = optimizer.finish();
+
+    assertArrayEquals(bytes(RESET, "A"), result);
+    assertArrayEquals(new byte[]{0x1B, 0x45}, rest);
+    assertEquals(5, optimizer.getBytesOut());
+    assertEquals(0, optimizer.getBytesSaved());
+  }
+
+  @Test
+  public void optimize_passesUnknownCommandsThroughUntouched() {
+    EscPosOptimizer optimizer = new EscPosOptimizer();
+    byte[] data = bytes(RESET, new byte[]{0x1C, 0x26}, BOLD_OFF, "A   ", LF);
+    byte[] result = optimizer.optimize(data);
+
+    assertArrayEquals(data, result);
+  }
+
+  @Test
+  public void optimize_passesEverythingThroughAfterUnknownCommandAcrossBuffers() {
+    EscPosOptimizer optimizer = new EscPosOptimizer();
+    // GS 8 L with a 16 byte payload, of which only 3 bytes arrive in the first buffer
+    byte[] firstData = bytes(RESET, new byte[]{0x1D, 0x38, 0x4C, 0x10, 0x00, 0x00, 0x00, 0x30, 0x70, 0x30});
+    byte[] secondData = {0x1B, 0x45, 0x01, 0x1B, 0x45, 0x01, 0x41, 0x20, 0x20, 0x0A, 0x1B, 0x4A, 0x10, 0x1B, 0x4A, 0x10};
+    byte[] first = optimizer.optimize(firstData);
+    byte[] second = optimizer.optimize(secondData);
+
+    assertArrayEquals(firstData, first);
+    assertArrayEquals(secondData, second);
+    assertEquals(0, optimizer.getBytesSaved());
+  }
+}
@@ -0,0 +1,227 @@
+package com.example.flutter_thermal_printer_pos;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.bluetooth.BluetoothDevice;
+import com.dantsu.escposprinter.connection.DeviceConnection;
+import com.dantsu.escposprinter.connection.bluetooth.BluetoothConnection;
+import com.dantsu.escposprinter.exceptions.EscPosConnectionException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class PrintServiceTest {
+  private static DeviceConnection openConnection() {
+    DeviceConnection connection = mock(DeviceConnection.class);
+    when(connection.isConnected()).thenReturn(true);
+    return connection;
+  }
+
+  private static BluetoothConnection bluetoothPrinter(String address) {
+    BluetoothDevice device = mock(BluetoothDevice.class);
+    when(device.getAddress()).thenReturn(address);
+    BluetoothConnection printer = mock(BluetoothConnection.class);
+    when(printer.getDevice()).thenReturn(device);
+    return printer;
+  }
+
+  @Test
+  public void acquire_sharesOneServiceUntilTheLastEngineReleasesIt() {
+    PrintService first = PrintService.acquire();
+    PrintService second = PrintService.acquire();
+    assertSame(first, second);
+
+    PrintService.release();
+    PrintService third = PrintService.acquire();
+    assertSame(first, third);
+
+    PrintService.release();
+    PrintService.release();
+    PrintService fresh = PrintService.acquire();
+    assertNotSame(first, fresh);
+
+    PrintService.release();
+  }
+
+  @Test
+  public void release_withoutAcquireIsIgnored() {
+    PrintService.release();
+
+    PrintService first = PrintService.acquire();
+    PrintService.release();
+    PrintService.release();
+    PrintService second = PrintService.acquire();
+    assertNotSame(first, second);
+
+    PrintService.release();
+  }
+
+  @Test
+  public void execute_runsJobsFromAllEnginesInOrderOnOneQueue() throws Exception {
+    PrintService ui = PrintService.acquire();
+    PrintService background = PrintService.acquire();
+    List<String> order = Collections.synchronizedList(new ArrayList<>());
+    List<Thread> threads = Collections.synchronizedList(new ArrayList<>());
+    CountDownLatch done = new CountDownLatch(2);
+
+    ui.execute(() -> {
+      threads.add(Thread.currentThread());
+      try {
+        Thread.sleep(50);
+      } catch (InterruptedException ignored) {
+      }
+      order.add("ui");
+      done.countDown();
+    });
+    background.execute(() -> {
+      threads.add(Thread.currentThread());
+      order.add("background");
+      done.countDown();
+    });
+
+    assertTrue(done.await(5, TimeUnit.SECONDS));
+    assertEquals(List.of("ui", "background"), order);
+    assertSame(threads.get(0), threads.get(1));
+
+    PrintService.release();
+    PrintService.release();
+  }
+
+  @Test
+  public void print_reusesOpenConnection() throws Exception {
+    PrintService service = new PrintService(60000);
+    DeviceConnection connection = openConnection();
+    PrintService.ConnectionFactory factory = mock(PrintService.ConnectionFactory.class);
+    when(factory.open()).thenReturn(connection);
+    PrintService.ConnectionJob job = mock(PrintService.ConnectionJob.class);
+
+    service.print(PrintService.tcpKey("10.0.0.5", 9100), factory, job);
+    service.print(PrintService.tcpKey("10.0.0.5", 9100), factory, job);
+
+    verify(factory, times(1)).open();
+    verify(job, times(2)).print(connection);
+    service.shutdown();
+  }
+
+  @Test
+  public void print_retriesOnceOnNewConnectionWhenReusedOneFails() throws Exception {
+    PrintService service = new PrintService(60000);
+    DeviceConnection dead = openConnection();
+    DeviceConnection fresh = openConnection();
+    PrintService.ConnectionFactory factory = mock(PrintService.ConnectionFactory.class);
+    when(factory.open()).thenReturn(dead, fresh);
+    PrintService.ConnectionJob job = mock(PrintService.ConnectionJob.class);
+
+    service.print("tcp:printer", factory, job);
+    doThrow(new EscPosConnectionException("Broken pipe")).when(job).print(dead);
+    service.print("tcp:printer", factory, job);
+
+    verify(dead).disconnect();
+    verify(job).print(fresh);
+    verify(factory, times(2)).open();
+    service.shutdown();
+  }
+
+  @Test
+  public void print_invalidatesNewConnectionWhenItFails() throws Exception {
+    PrintService service = new PrintService(60000);
+    DeviceConnection first = openConnection();
+    DeviceConnection second = openConnection();
+    PrintService.ConnectionFactory factory = mock(PrintService.ConnectionFactory.class);
+    when(factory.open()).thenReturn(first, second);
+    PrintService.ConnectionJob job = mock(PrintService.ConnectionJob.class);
+    doThrow(new EscPosConnectionException("Connection refused")).when(job).print(first);
+
+    try {
+      service.print("tcp:printer", factory, job);
+      fail("Expected the failure to be reported");
+    } catch (EscPosConnectionException expected) {
+    }
+    verify(first).disconnect();
+    verify(factory, times(1)).open();
+
+    service.print("tcp:printer", factory, job);
+    verify(job).print(second);
+    service.shutdown();
+  }
+
+  @Test
+  public void printFirstPaired_usesConnectedPrinterWithoutConnectingAgain() throws Exception {
+    PrintService service = new PrintService(60000);
+    DeviceConnection connected = openConnection();
+    PrintService.ConnectionJob job = mock(PrintService.ConnectionJob.class);
+    service.print(PrintService.bluetoothKey("00:00:00:00:00:02"), () -> connected, job);
+
+    BluetoothConnection first = bluetoothPrinter("00:00:00:00:00:01");
+    BluetoothConnection second = bluetoothPrinter("00:00:00:00:00:02");
+    assertTrue(service.printFirstPaired(new BluetoothConnection[]{first, second}, job));
+
+    verify(first, never()).connect();
+    verify(second, never()).connect();
+    verify(job, times(2)).print(connected);
+    service.shutdown();
+  }
+
+  @Test
+  public void printFirstPaired_connectsFirstReachablePrinterAndKeepsIt() throws Exception {
+    PrintService service = new PrintService(60000);
+    PrintService.ConnectionJob job = mock(PrintService.ConnectionJob.class);
+    BluetoothConnection offline = bluetoothPrinter("00:00:00:00:00:01");
+    when(offline.connect()).thenThrow(new EscPosConnectionException("Unable to connect"));
+    BluetoothConnection online = bluetoothPrinter("00:00:00:00:00:02");
+    when(online.isConnected()).thenReturn(true);
+
+    assertTrue(service.printFirstPaired(new BluetoothConnection[]{offline, online}, job));
+    assertTrue(service.printFirstPaired(new BluetoothConnection[]{offline, online}, job));
+
+    verify(online, times(1)).connect();
+    verify(job, times(2)).print(online);
+    service.shutdown();
+  }
+
+  @Test
+  public void printFirstPaired_reportsWhenNoPrinterIsReachable() throws Exception {
+    PrintService service = new PrintService(60000);
+    PrintService.ConnectionJob job = mock(PrintService.ConnectionJob.class);
+    BluetoothConnection offline = bluetoothPrinter("00:00:00:00:00:01");
+    when(offline.connect()).thenThrow(new EscPosConnectionException("Unable to connect"));
+
+    assertFalse(service.printFirstPaired(new BluetoothConnection[]{offline}, job));
+    assertFalse(service.printFirstPaired(null, job));
+    verify(job, never()).print(offline);
+    service.shutdown();
+  }
+
+  @Test
+  public void execute_closesConnectionsOnceIdle() throws Exception {
+    PrintService service = new PrintService(50);
+    DeviceConnection connection = openConnection();
+    PrintService.ConnectionJob job = mock(PrintService.ConnectionJob.class);
+
+    service.execute(() -> {
+      try {
+        service.print("tcp:printer", () -> connection, job);
+      } catch (Exception e) {
+        throw new RuntimeException(e);
+      }
+    });
+
+    verify(connection, timeout(2000)).disconnect();
+    service.shutdown();
+  }
+}